@@ -0,0 +1,40 @@
+package queuectl;
+
+import java.time.Duration;
+import java.time.Instant;
+
+public class CircuitBreaker {
+
+    static final String CLOSED = "closed";
+    static final String OPEN = "open";
+    static final String HALF_OPEN = "half_open";
+
+    String key;
+    String state;
+    int failures;
+    Instant openedAt;
+    Instant openUntil;
+    String probeJobId;
+    Instant updatedAt;
+
+    /** Breakers are keyed by the first word of the command, e.g. {@code curl} for {@code curl -s http://...}. */
+    static String keyFor(String command) {
+        String trimmed = command.trim();
+        int space = trimmed.indexOf(' ');
+        return space < 0 ? trimmed : trimmed.substring(0, space);
+    }
+
+    @Override
+    public String toString() {
+        String detail;
+        if (OPEN.equals(state) && openUntil != null) {
+            long remaining = Math.max(0, Duration.between(Instant.now(), openUntil).getSeconds());
+            detail = "opened " + openedAt + ", probe in " + remaining + "s";
+        } else if (HALF_OPEN.equals(state)) {
+            detail = "probing with job " + probeJobId + " since " + updatedAt;
+        } else {
+            detail = "last failure " + updatedAt;
+        }
+        return String.format("%-20s %-10s failures=%-4d %s", key, state.toUpperCase(), failures, detail);
+    }
+}
@@ -24,6 +24,11 @@ public class Config {
             props.setProperty("backoff_base", "2");
             props.setProperty("job_timeout_seconds", "300");
             props.setProperty("lock_timeout_seconds", "60");
+            props.setProperty("retry_policy", "exponential");
+            props.setProperty("backoff_cap_seconds", "3600");
+            props.setProperty("fixed_backoff_seconds", "10");
+            props.setProperty("breaker_failure_threshold", "5");
+            props.setProperty("breaker_cooldown_seconds", "30");
             save();
         }
     }
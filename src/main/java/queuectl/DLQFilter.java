@@ -0,0 +1,74 @@
+package queuectl;
+
+import picocli.CommandLine.Option;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+public class DLQFilter {
+
+    @Option(names = "--error", description = "Only jobs whose error output contains this text.")
+    String errorContains;
+
+    @Option(names = "--command", description = "Only jobs whose command matches this glob pattern (e.g. 'curl *').")
+    String commandPattern;
+
+    @Option(names = "--since", description = "Only jobs that died at or after this instant (e.g. 2025-01-01T00:00:00Z).")
+    Instant since;
+
+    @Option(names = "--until", description = "Only jobs that died before this instant.")
+    Instant until;
+
+    private static final DateTimeFormatter SECOND_PREFIX =
+        DateTimeFormatter.ofPattern("uuuu-MM-dd'T'HH:mm:ss").withZone(ZoneOffset.UTC);
+
+    private List<Long> errorIds;
+
+    boolean isEmpty() {
+        return errorContains == null && commandPattern == null && since == null && until == null;
+    }
+
+    /** WHERE clause selecting the matching dead jobs; parameters are bound by {@link #bind}. */
+    String where() {
+        StringBuilder sql = new StringBuilder("state = 'dead'");
+        if (errorContains != null) sql.append(" AND error_id IN (SELECT value FROM json_each(?))");
+        if (commandPattern != null) sql.append(" AND command GLOB ?");
+        // Stored instants have a varying number of fractional digits, so text order is only right to the
+        // second. The text bound keeps the (state, updated_at) index usable; julianday() decides exactly.
+        if (since != null) sql.append(" AND updated_at >= ? AND julianday(updated_at) >= julianday(?)");
+        if (until != null) sql.append(" AND updated_at < ? AND julianday(updated_at) < julianday(?)");
+        return sql.toString();
+    }
+
+    /** Binds the filter parameters starting at {@code index} and returns the next free index. */
+    int bind(PreparedStatement pstmt, int index) throws SQLException {
+        if (errorContains != null) pstmt.setString(index++, matchingErrorIds().toString());
+        if (commandPattern != null) pstmt.setString(index++, commandPattern);
+        if (since != null) {
+            pstmt.setString(index++, secondPrefix(since));
+            pstmt.setString(index++, since.toString());
+        }
+        if (until != null) {
+            pstmt.setString(index++, secondPrefix(until.plusSeconds(1)));
+            pstmt.setString(index++, until.toString());
+        }
+        return index;
+    }
+
+    /** "2025-01-01T00:00:05", which sorts before every stored instant within or after that second. */
+    private static String secondPrefix(Instant instant) {
+        return SECOND_PREFIX.format(instant);
+    }
+
+    /** Error text is stored compressed, so the substring is matched once per distinct payload up front. */
+    private List<Long> matchingErrorIds() {
+        if (errorIds == null) {
+            errorIds = Database.findErrorIds(errorContains);
+        }
+        return errorIds;
+    }
+}
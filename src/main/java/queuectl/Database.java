@@ -6,16 +6,22 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 public class Database {
 
     private static final String DB_URL = "jdbc:sqlite:queue.db";
+    private static final int SQLITE_BUSY = 5;
+    private static final int MAX_BUSY_RETRIES = 5;
 
     public static Connection getConnection() throws SQLException {
         Connection conn = DriverManager.getConnection(DB_URL);
@@ -38,7 +44,34 @@ public class Database {
                 updated_at DATETIME NOT NULL,
                 error_message TEXT,
                 worker_id TEXT,
-                locked_at DATETIME
+                locked_at DATETIME,
+                retry_policy TEXT,
+                last_backoff_ms INTEGER NOT NULL DEFAULT 0,
+                command_key TEXT,
+                error_id INTEGER REFERENCES error_blobs (id)
+            );
+            """;
+
+        String errorBlobsSql = """
+            CREATE TABLE IF NOT EXISTS error_blobs (
+                id INTEGER PRIMARY KEY,
+                hash TEXT NOT NULL UNIQUE,
+                summary TEXT NOT NULL,
+                size INTEGER NOT NULL,
+                data BLOB NOT NULL,
+                created_at DATETIME NOT NULL
+            );
+            """;
+
+        String breakersSql = """
+            CREATE TABLE IF NOT EXISTS circuit_breakers (
+                key TEXT PRIMARY KEY,
+                state TEXT NOT NULL,
+                failures INTEGER NOT NULL DEFAULT 0,
+                opened_at DATETIME,
+                open_until DATETIME,
+                probe_job_id TEXT,
+                updated_at DATETIME NOT NULL
             );
             """;
 
@@ -46,24 +79,152 @@ public class Database {
              Statement stmt = conn.createStatement()) {
 
             stmt.execute("PRAGMA journal_mode = WAL");
+            stmt.execute(errorBlobsSql);
             stmt.execute(sql);
 
             try { stmt.execute("ALTER TABLE jobs ADD COLUMN worker_id TEXT"); } catch (SQLException ignored) {}
             try { stmt.execute("ALTER TABLE jobs ADD COLUMN locked_at DATETIME"); } catch (SQLException ignored) {}
+            try { stmt.execute("ALTER TABLE jobs ADD COLUMN retry_policy TEXT"); } catch (SQLException ignored) {}
+            try { stmt.execute("ALTER TABLE jobs ADD COLUMN last_backoff_ms INTEGER NOT NULL DEFAULT 0"); } catch (SQLException ignored) {}
+            try { stmt.execute("ALTER TABLE jobs ADD COLUMN command_key TEXT"); } catch (SQLException ignored) {}
+            try { stmt.execute("ALTER TABLE jobs ADD COLUMN error_id INTEGER REFERENCES error_blobs (id)"); } catch (SQLException ignored) {}
+
+            stmt.execute("""
+                UPDATE jobs SET command_key = CASE
+                    WHEN instr(trim(command), ' ') > 0 THEN substr(trim(command), 1, instr(trim(command), ' ') - 1)
+                    ELSE trim(command) END
+                WHERE command_key IS NULL
+                """);
+            stmt.execute(breakersSql);
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_jobs_state_updated_at ON jobs (state, updated_at)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_jobs_state_error_id ON jobs (state, error_id)");
+
+            migrateErrorMessages(conn);
 
         } catch (SQLException e) {
             System.err.println("Database init error: " + e.getMessage());
         }
     }
 
+    /** Moves error text written by older versions into error_blobs, a chunk per transaction. */
+    private static void migrateErrorMessages(Connection conn) throws SQLException {
+        String selectSql = "SELECT id, error_message FROM jobs WHERE error_message IS NOT NULL LIMIT 500";
+        String updateSql = "UPDATE jobs SET error_id = ?, error_message = NULL WHERE id = ?";
+
+        while (true) {
+            Map<String, String> chunk = new HashMap<>();
+            try (Statement sel = conn.createStatement();
+                 ResultSet rs = sel.executeQuery(selectSql)) {
+                while (rs.next()) {
+                    chunk.put(rs.getString("id"), rs.getString("error_message"));
+                }
+            }
+            if (chunk.isEmpty()) {
+                return;
+            }
+
+            conn.setAutoCommit(false);
+            try (PreparedStatement upd = conn.prepareStatement(updateSql)) {
+                for (Map.Entry<String, String> entry : chunk.entrySet()) {
+                    String error = entry.getValue();
+                    upd.setLong(1, insertError(conn, ErrorBlob.hash(error), error, ErrorBlob.compress(error)));
+                    upd.setString(2, entry.getKey());
+                    upd.executeUpdate();
+                }
+                conn.commit();
+            } catch (SQLException ex) {
+                conn.rollback();
+                throw ex;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface ErrorUpdate {
+        void apply(Connection conn, long errorId) throws SQLException;
+    }
+
+    /**
+     * Stores {@code error} and runs {@code update} with its blob id in one transaction. The hash is looked up
+     * before the transaction, so repeated payloads skip compression and every transaction starts with a
+     * write; a deferred transaction that reads first cannot upgrade to the write lock under WAL.
+     */
+    private static void writeWithError(String error, ErrorUpdate update) throws SQLException {
+        String hash = ErrorBlob.hash(error);
+
+        try (Connection conn = getConnection()) {
+            Long existingId = findErrorId(conn, hash);
+            byte[] data = existingId == null ? ErrorBlob.compress(error) : null;
+
+            for (int busyRetries = 0; ; busyRetries++) {
+                conn.setAutoCommit(false);
+                try {
+                    long errorId = existingId != null ? existingId : insertError(conn, hash, error, data);
+                    update.apply(conn, errorId);
+                    conn.commit();
+                    return;
+                } catch (SQLException ex) {
+                    conn.rollback();
+                    if (!isBusy(ex) || busyRetries >= MAX_BUSY_RETRIES) {
+                        throw ex;
+                    }
+                } finally {
+                    conn.setAutoCommit(true);
+                }
+                busyBackoff(busyRetries + 1);
+            }
+        }
+    }
+
+    private static Long findErrorId(Connection conn, String hash) throws SQLException {
+        try (PreparedStatement sel = conn.prepareStatement("SELECT id FROM error_blobs WHERE hash = ?")) {
+            sel.setString(1, hash);
+            ResultSet rs = sel.executeQuery();
+            return rs.next() ? rs.getLong("id") : null;
+        }
+    }
+
+    /** Inserts the blob unless another writer already has, then returns its id. Writes before it reads. */
+    private static long insertError(Connection conn, String hash, String error, byte[] data) throws SQLException {
+        String insertSql = "INSERT OR IGNORE INTO error_blobs (hash, summary, size, data, created_at) VALUES (?, ?, ?, ?, ?)";
+        try (PreparedStatement ins = conn.prepareStatement(insertSql)) {
+            ins.setString(1, hash);
+            ins.setString(2, ErrorBlob.summarize(error));
+            ins.setInt(3, error.length());
+            ins.setBytes(4, data);
+            ins.setString(5, Instant.now().toString());
+            ins.executeUpdate();
+        }
+        return findErrorId(conn, hash);
+    }
+
+    private static boolean isBusy(SQLException e) {
+        return (e.getErrorCode() & 0xff) == SQLITE_BUSY;
+    }
+
+    private static void busyBackoff(int attempt) throws SQLException {
+        try {
+            TimeUnit.MILLISECONDS.sleep(ThreadLocalRandom.current().nextLong(10, 50) * attempt);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for the database lock", e);
+        }
+    }
+
     public static String enqueueJob(String command) {
+        return enqueueJob(command, null);
+    }
+
+    public static String enqueueJob(String command, String retryPolicy) {
         String jobId = UUID.randomUUID().toString();
         Instant now = Instant.now();
         int maxRetries = Config.getInt("max_retries", 3);
 
         String sql = """
-            INSERT INTO jobs (id, command, state, max_retries, run_at, created_at, updated_at)
-            VALUES (?, ?, ?, ?, ?, ?, ?);
+            INSERT INTO jobs (id, command, state, max_retries, run_at, created_at, updated_at, retry_policy, command_key)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?);
             """;
 
         try (Connection conn = getConnection();
@@ -76,6 +237,8 @@ public class Database {
             pstmt.setString(5, now.toString());
             pstmt.setString(6, now.toString());
             pstmt.setString(7, now.toString());
+            pstmt.setString(8, retryPolicy);
+            pstmt.setString(9, CircuitBreaker.keyFor(command));
 
             pstmt.executeUpdate();
             return jobId;
@@ -87,7 +250,49 @@ public class Database {
     }
 
     public static Job findAndLockJob(String workerId) {
-        String selectSql = "SELECT id FROM jobs WHERE state = 'pending' AND run_at <= ? ORDER BY created_at LIMIT 1";
+        JobEvents.Claim event = new JobEvents.Claim();
+        event.begin();
+        event.workerId = workerId;
+        try {
+            while (true) {
+                try {
+                    Job job = claimJob(workerId);
+                    if (job != null) {
+                        event.jobId = job.id;
+                        event.queueWait = Math.max(0, Duration.between(job.runAt, job.lockedAt).toMillis());
+                        event.commit();
+                    }
+                    return job;
+                } catch (SQLException e) {
+                    // Another worker or a bulk DLQ chunk holds the write lock; back off briefly and try again.
+                    if (!isBusy(e) || event.busyRetries >= MAX_BUSY_RETRIES) {
+                        throw e;
+                    }
+                    event.busyRetries++;
+                    TimeUnit.MILLISECONDS.sleep(ThreadLocalRandom.current().nextLong(10, 50) * event.busyRetries);
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error finding/locking job: " + e.getMessage());
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    private static Job claimJob(String workerId) throws SQLException {
+        // A breaker_failure_threshold of 0 disables breakers, including any left open or half-open.
+        boolean breakersEnabled = Config.getInt("breaker_failure_threshold", 5) > 0;
+        String breakerFilter = !breakersEnabled ? "" : """
+              AND (command_key IS NULL OR command_key NOT IN (
+                  SELECT key FROM circuit_breakers
+                  WHERE state = 'half_open' OR (state = 'open' AND open_until > ?)))
+            """;
+        String selectSql = "SELECT id, command_key FROM jobs WHERE state = 'pending' AND run_at <= ?\n"
+            + breakerFilter
+            + "ORDER BY created_at LIMIT 1";
+        String probeSql = "UPDATE circuit_breakers SET state = 'half_open', probe_job_id = ?, updated_at = ? WHERE key = ? AND state = 'open'";
         String updateSql = "UPDATE jobs SET state = 'processing', attempts = attempts + 1, worker_id = ?, locked_at = ?, updated_at = ? WHERE id = ? AND state = 'pending'";
         String fetchSql = "SELECT * FROM jobs WHERE id = ?";
 
@@ -96,12 +301,26 @@ public class Database {
             conn.setAutoCommit(false);
             try (PreparedStatement sel = conn.prepareStatement(selectSql)) {
                 sel.setString(1, now.toString());
+                if (breakersEnabled) {
+                    sel.setString(2, now.toString());
+                }
                 ResultSet rs = sel.executeQuery();
                 if (!rs.next()) {
                     conn.commit();
                     return null;
                 }
                 String id = rs.getString("id");
+                String key = rs.getString("command_key");
+
+                // An open breaker whose cooldown has elapsed lets exactly this job through as its probe.
+                if (breakersEnabled && key != null) {
+                    try (PreparedStatement probe = conn.prepareStatement(probeSql)) {
+                        probe.setString(1, id);
+                        probe.setString(2, now.toString());
+                        probe.setString(3, key);
+                        probe.executeUpdate();
+                    }
+                }
 
                 try (PreparedStatement upd = conn.prepareStatement(updateSql)) {
                     upd.setString(1, workerId);
@@ -134,9 +353,6 @@ public class Database {
             } finally {
                 conn.setAutoCommit(true);
             }
-        } catch (SQLException e) {
-            System.err.println("Error finding/locking job: " + e.getMessage());
-            return null;
         }
     }
 
@@ -153,36 +369,42 @@ public class Database {
     }
 
     public static void markJobDead(String jobId, String error) {
-        String sql = "UPDATE jobs SET state = 'dead', updated_at = ?, error_message = ? WHERE id = ?";
-        try (Connection conn = getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, Instant.now().toString());
-            pstmt.setString(2, error);
-            pstmt.setString(3, jobId);
-            pstmt.executeUpdate();
+        String sql = "UPDATE jobs SET state = 'dead', updated_at = ?, error_id = ? WHERE id = ?";
+        try {
+            writeWithError(error, (conn, errorId) -> {
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    pstmt.setString(1, Instant.now().toString());
+                    pstmt.setLong(2, errorId);
+                    pstmt.setString(3, jobId);
+                    pstmt.executeUpdate();
+                }
+            });
         } catch (SQLException e) {
             System.err.println("Error marking job dead: " + e.getMessage());
         }
     }
 
-    public static void markJobFailed(String jobId, String error, int attempts, Instant newRunAt) {
-        String sql = "UPDATE jobs SET state = 'pending', updated_at = ?, error_message = ?, attempts = ?, run_at = ? WHERE id = ?";
-        try (Connection conn = getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-
-            pstmt.setString(1, Instant.now().toString());
-            pstmt.setString(2, error);
-            pstmt.setInt(3, attempts);
-            pstmt.setString(4, newRunAt.toString());
-            pstmt.setString(5, jobId);
-            pstmt.executeUpdate();
+    public static void markJobFailed(String jobId, String error, int attempts, Instant newRunAt, long backoffMs) {
+        String sql = "UPDATE jobs SET state = 'pending', updated_at = ?, error_id = ?, attempts = ?, run_at = ?, last_backoff_ms = ? WHERE id = ?";
+        try {
+            writeWithError(error, (conn, errorId) -> {
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    pstmt.setString(1, Instant.now().toString());
+                    pstmt.setLong(2, errorId);
+                    pstmt.setInt(3, attempts);
+                    pstmt.setString(4, newRunAt.toString());
+                    pstmt.setLong(5, backoffMs);
+                    pstmt.setString(6, jobId);
+                    pstmt.executeUpdate();
+                }
+            });
         } catch (SQLException e) {
             System.err.println("Error marking job failed: " + e.getMessage());
         }
     }
 
     public static boolean retryJob(String jobId) {
-        String sql = "UPDATE jobs SET state = 'pending', attempts = 0, run_at = ?, updated_at = ? WHERE id = ? AND state = 'dead'";
+        String sql = "UPDATE jobs SET state = 'pending', attempts = 0, last_backoff_ms = 0, run_at = ?, updated_at = ? WHERE id = ? AND state = 'dead'";
         Instant now = Instant.now();
 
         try (Connection conn = getConnection();
@@ -200,6 +422,190 @@ public class Database {
         }
     }
 
+    @FunctionalInterface
+    private interface ChunkBinder {
+        /** Binds the statement's leading parameters given the rows changed so far; returns the next free index. */
+        int bind(PreparedStatement pstmt, int processed) throws SQLException;
+    }
+
+    /**
+     * Moves matching DLQ jobs back to pending in chunks of {@code batchSize}, one short write
+     * transaction per chunk so workers can keep claiming in between. With a positive {@code rate}
+     * (jobs per second) the chunks get staggered run_at times instead of all becoming due at once.
+     */
+    public static int retryDeadJobs(DLQFilter filter, int batchSize, double rate) {
+        String sql = "UPDATE jobs SET state = 'pending', attempts = 0, last_backoff_ms = 0, worker_id = NULL, locked_at = NULL, run_at = ?, updated_at = ?";
+        int chunkSize = rate > 0 ? (int) Math.max(1, Math.min(batchSize, Math.ceil(rate))) : batchSize;
+        Instant start = Instant.now();
+
+        return runDeadChunks(sql, filter, chunkSize, "Error retrying DLQ jobs: ", (pstmt, processed) -> {
+            long offsetMs = rate > 0 ? (long) (processed * 1000.0 / rate) : 0;
+            pstmt.setString(1, start.plusMillis(offsetMs).toString());
+            pstmt.setString(2, Instant.now().toString());
+            return 3;
+        });
+    }
+
+    /** Deletes matching DLQ jobs in chunks of {@code batchSize}, one short write transaction per chunk. */
+    public static int purgeDeadJobs(DLQFilter filter, int batchSize) {
+        int total = runDeadChunks("DELETE FROM jobs", filter, batchSize, "Error purging DLQ jobs: ", (pstmt, processed) -> 1);
+        deleteOrphanedErrors();
+        return total;
+    }
+
+    /**
+     * Applies {@code statement} to the filtered dead jobs one window of at most {@code windowSize} dead
+     * jobs at a time, walking the (state, updated_at) index by (updated_at, rowid). The window bounds are
+     * found with a read outside the write transaction, so each chunk's write only examines the rows of
+     * its own window, however selective the filter is.
+     */
+    private static int runDeadChunks(String statement, DLQFilter filter, int windowSize, String errorPrefix, ChunkBinder leading) {
+        String windowSql = "SELECT updated_at, rowid FROM jobs WHERE state = 'dead' AND (updated_at, rowid) > (?, ?) "
+            + "ORDER BY updated_at, rowid LIMIT 1 OFFSET ?";
+        String chunkSql = statement + " WHERE rowid IN (SELECT rowid FROM jobs WHERE " + filter.where()
+            + " AND (updated_at, rowid) > (?, ?) AND (updated_at, rowid) <= (?, ?))";
+        String lastChunkSql = statement + " WHERE rowid IN (SELECT rowid FROM jobs WHERE " + filter.where()
+            + " AND (updated_at, rowid) > (?, ?))";
+
+        String afterAt = "";
+        long afterRowid = -1;
+        int total = 0;
+
+        try (Connection conn = getConnection();
+             PreparedStatement window = conn.prepareStatement(windowSql);
+             PreparedStatement chunk = conn.prepareStatement(chunkSql);
+             PreparedStatement lastChunk = conn.prepareStatement(lastChunkSql)) {
+
+            while (true) {
+                window.setString(1, afterAt);
+                window.setLong(2, afterRowid);
+                window.setInt(3, windowSize - 1);
+                String endAt = null;
+                long endRowid = 0;
+                try (ResultSet rs = window.executeQuery()) {
+                    if (rs.next()) {
+                        endAt = rs.getString("updated_at");
+                        endRowid = rs.getLong("rowid");
+                    }
+                }
+
+                PreparedStatement pstmt = endAt != null ? chunk : lastChunk;
+                int index = filter.bind(pstmt, leading.bind(pstmt, total));
+                pstmt.setString(index++, afterAt);
+                pstmt.setLong(index++, afterRowid);
+                if (endAt != null) {
+                    pstmt.setString(index++, endAt);
+                    pstmt.setLong(index, endRowid);
+                }
+                total += pstmt.executeUpdate();
+
+                if (endAt == null) {
+                    break;
+                }
+                afterAt = endAt;
+                afterRowid = endRowid;
+            }
+        } catch (SQLException e) {
+            System.err.println(errorPrefix + e.getMessage());
+        }
+        return total;
+    }
+
+    private static void deleteOrphanedErrors() {
+        String sql = "DELETE FROM error_blobs WHERE id NOT IN (SELECT error_id FROM jobs WHERE error_id IS NOT NULL)";
+        try (Connection conn = getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate(sql);
+        } catch (SQLException e) {
+            System.err.println("Error deleting unreferenced error payloads: " + e.getMessage());
+        }
+    }
+
+    public static String getErrorText(long errorId) {
+        String sql = "SELECT data FROM error_blobs WHERE id = ?";
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setLong(1, errorId);
+            ResultSet rs = pstmt.executeQuery();
+            return rs.next() ? ErrorBlob.decompress(rs.getBytes("data")) : null;
+        } catch (SQLException e) {
+            System.err.println("Error reading error payload: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /** IDs of the distinct error payloads containing {@code text}; each payload is inflated once, not once per job. */
+    public static List<Long> findErrorIds(String text) {
+        List<Long> ids = new ArrayList<>();
+        String sql = "SELECT id, data FROM error_blobs";
+
+        try (Connection conn = getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+
+            while (rs.next()) {
+                if (ErrorBlob.decompress(rs.getBytes("data")).contains(text)) {
+                    ids.add(rs.getLong("id"));
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error searching error payloads: " + e.getMessage());
+        }
+        return ids;
+    }
+
+    /** Distinct failure signatures in the DLQ with their job counts, read from the (state, error_id) index and blob summaries. */
+    public static List<ErrorGroup> getDeadErrorGroups(DLQFilter filter) {
+        List<ErrorGroup> groups = new ArrayList<>();
+        String sql = "SELECT b.id, b.summary, b.size, g.jobs, g.first_seen, g.last_seen FROM ("
+            + "SELECT error_id, COUNT(*) AS jobs, MIN(updated_at) AS first_seen, MAX(updated_at) AS last_seen "
+            + "FROM jobs WHERE " + filter.where() + " GROUP BY error_id"
+            + ") g JOIN error_blobs b ON b.id = g.error_id ORDER BY g.jobs DESC";
+
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            filter.bind(pstmt, 1);
+            ResultSet rs = pstmt.executeQuery();
+            while (rs.next()) {
+                ErrorGroup group = new ErrorGroup();
+                group.errorId = rs.getLong("id");
+                group.summary = rs.getString("summary");
+                group.size = rs.getInt("size");
+                group.jobs = rs.getInt("jobs");
+                group.firstSeen = Instant.parse(rs.getString("first_seen"));
+                group.lastSeen = Instant.parse(rs.getString("last_seen"));
+                groups.add(group);
+            }
+        } catch (SQLException e) {
+            System.err.println("Error grouping DLQ jobs by error: " + e.getMessage());
+        }
+        return groups;
+    }
+
+    /**
+     * Passes each matching dead job to {@code action} as its row is read, oldest first, so listing a
+     * large DLQ never holds more than one job in memory. Returns the number of jobs visited.
+     */
+    public static int forEachDeadJob(DLQFilter filter, Consumer<Job> action) {
+        String sql = "SELECT * FROM jobs WHERE " + filter.where() + " ORDER BY updated_at, rowid";
+        int count = 0;
+
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            filter.bind(pstmt, 1);
+            ResultSet rs = pstmt.executeQuery();
+            while (rs.next()) {
+                action.accept(mapRowToJob(rs));
+                count++;
+            }
+        } catch (SQLException e) {
+            System.err.println("Error getting DLQ jobs: " + e.getMessage());
+        }
+        return count;
+    }
+
     public static Map<String, Integer> getJobCounts() {
         Map<String, Integer> counts = new HashMap<>();
         String sql = "SELECT state, COUNT(*) as count FROM jobs GROUP BY state";
@@ -237,6 +643,97 @@ public class Database {
         return jobs;
     }
 
+    public static void recordBreakerSuccess(String key) {
+        String sql = "UPDATE circuit_breakers SET state = 'closed', failures = 0, opened_at = NULL, open_until = NULL, probe_job_id = NULL, updated_at = ? WHERE key = ? AND (state != 'closed' OR failures > 0)";
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, Instant.now().toString());
+            pstmt.setString(2, key);
+            pstmt.executeUpdate();
+        } catch (SQLException e) {
+            System.err.println("Error recording breaker success: " + e.getMessage());
+        }
+    }
+
+    /** Counts a failure against the breaker and returns true if this failure tripped it open. */
+    public static boolean recordBreakerFailure(String key, int threshold, long cooldownSeconds) {
+        String upsertSql = """
+            INSERT INTO circuit_breakers (key, state, failures, updated_at) VALUES (?, 'closed', 1, ?)
+            ON CONFLICT(key) DO UPDATE SET failures = failures + 1, updated_at = excluded.updated_at
+            """;
+        String selectSql = "SELECT state, failures FROM circuit_breakers WHERE key = ?";
+        String openSql = "UPDATE circuit_breakers SET state = 'open', opened_at = ?, open_until = ?, probe_job_id = NULL WHERE key = ?";
+
+        Instant now = Instant.now();
+        try (Connection conn = getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                try (PreparedStatement upsert = conn.prepareStatement(upsertSql)) {
+                    upsert.setString(1, key);
+                    upsert.setString(2, now.toString());
+                    upsert.executeUpdate();
+                }
+
+                String state;
+                int failures;
+                try (PreparedStatement sel = conn.prepareStatement(selectSql)) {
+                    sel.setString(1, key);
+                    ResultSet rs = sel.executeQuery();
+                    rs.next();
+                    state = rs.getString("state");
+                    failures = rs.getInt("failures");
+                }
+
+                boolean trip = CircuitBreaker.HALF_OPEN.equals(state)
+                    || (CircuitBreaker.CLOSED.equals(state) && failures >= threshold);
+                if (trip) {
+                    try (PreparedStatement open = conn.prepareStatement(openSql)) {
+                        open.setString(1, now.toString());
+                        open.setString(2, now.plusSeconds(cooldownSeconds).toString());
+                        open.setString(3, key);
+                        open.executeUpdate();
+                    }
+                }
+
+                conn.commit();
+                return trip;
+            } catch (SQLException ex) {
+                conn.rollback();
+                throw ex;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            System.err.println("Error recording breaker failure: " + e.getMessage());
+            return false;
+        }
+    }
+
+    public static List<CircuitBreaker> getCircuitBreakers() {
+        List<CircuitBreaker> breakers = new ArrayList<>();
+        String sql = "SELECT * FROM circuit_breakers WHERE state != 'closed' OR failures > 0 ORDER BY key";
+
+        try (Connection conn = getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+
+            while (rs.next()) {
+                CircuitBreaker breaker = new CircuitBreaker();
+                breaker.key = rs.getString("key");
+                breaker.state = rs.getString("state");
+                breaker.failures = rs.getInt("failures");
+                breaker.openedAt = rs.getString("opened_at") != null ? Instant.parse(rs.getString("opened_at")) : null;
+                breaker.openUntil = rs.getString("open_until") != null ? Instant.parse(rs.getString("open_until")) : null;
+                breaker.probeJobId = rs.getString("probe_job_id");
+                breaker.updatedAt = Instant.parse(rs.getString("updated_at"));
+                breakers.add(breaker);
+            }
+        } catch (SQLException e) {
+            System.err.println("Error getting circuit breakers: " + e.getMessage());
+        }
+        return breakers;
+    }
+
     public static void recoverStaleProcessing(long staleSeconds) {
         String sql = "UPDATE jobs SET state = 'pending', worker_id = NULL, locked_at = NULL, updated_at = ? WHERE state = 'processing' AND locked_at <= ?";
         Instant cutoff = Instant.now().minusSeconds(staleSeconds);
@@ -251,6 +748,18 @@ public class Database {
         } catch (SQLException e) {
             System.err.println("Error recovering stale jobs: " + e.getMessage());
         }
+
+        // A probe whose worker died would otherwise leave its breaker half-open forever.
+        String probeSql = "UPDATE circuit_breakers SET state = 'open', open_until = ?, probe_job_id = NULL, updated_at = ? WHERE state = 'half_open' AND updated_at <= ?";
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(probeSql)) {
+            pstmt.setString(1, Instant.now().toString());
+            pstmt.setString(2, Instant.now().toString());
+            pstmt.setString(3, cutoff.toString());
+            pstmt.executeUpdate();
+        } catch (SQLException e) {
+            System.err.println("Error recovering stale breaker probes: " + e.getMessage());
+        }
     }
 
     private static Job mapRowToJob(ResultSet rs) throws SQLException {
@@ -264,8 +773,13 @@ public class Database {
         job.createdAt = Instant.parse(rs.getString("created_at"));
         job.updatedAt = Instant.parse(rs.getString("updated_at"));
         job.errorMessage = rs.getString("error_message");
+        long errorId = rs.getLong("error_id");
+        job.errorId = rs.wasNull() ? null : errorId;
         job.workerId = rs.getString("worker_id");
         job.lockedAt = rs.getString("locked_at") != null ? Instant.parse(rs.getString("locked_at")) : null;
+        job.retryPolicy = rs.getString("retry_policy");
+        job.lastBackoffMs = rs.getLong("last_backoff_ms");
+        job.commandKey = rs.getString("command_key");
         return job;
     }
 }
\ No newline at end of file
@@ -0,0 +1,21 @@
+package queuectl;
+
+import java.time.Instant;
+
+public class ErrorGroup {
+
+    long errorId;
+    String summary;
+    int size;
+    int jobs;
+    Instant firstSeen;
+    Instant lastSeen;
+
+    @Override
+    public String toString() {
+        return String.format(
+            "Error[ID=%d, Jobs=%d, FirstSeen=%s, LastSeen=%s, Size=%d]",
+            errorId, jobs, firstSeen, lastSeen, size
+        );
+    }
+}
@@ -13,8 +13,12 @@ public class Job {
     Instant createdAt;
     Instant updatedAt;
     String errorMessage;
+    Long errorId;
     String workerId;
     Instant lockedAt;
+    String retryPolicy;
+    long lastBackoffMs;
+    String commandKey;
 
     @Override
     public String toString() {
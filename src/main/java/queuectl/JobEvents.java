@@ -0,0 +1,95 @@
+package queuectl;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Recording;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Flight Recorder events for each phase of a job attempt. Every event carries the job and worker ID
+ * so {@code queuectl trace} can rebuild a single job's timeline from a recording.
+ */
+public class JobEvents {
+
+    static final String PREFIX = "queuectl.";
+
+    static final List<Class<? extends Event>> ALL = List.of(
+        Claim.class, Spawn.class, Execute.class, OutputDrain.class, Commit.class
+    );
+
+    @Category({"queuectl", "Job"})
+    @StackTrace(false)
+    abstract static class JobEvent extends Event {
+        @Label("Job ID")
+        String jobId;
+
+        @Label("Worker ID")
+        String workerId;
+    }
+
+    @Name(PREFIX + "Claim")
+    @Label("Claim")
+    @Description("Finding and locking a pending job in findAndLockJob.")
+    static class Claim extends JobEvent {
+        @Label("Busy Retries")
+        @Description("Claim transactions retried because SQLite reported the database as busy.")
+        int busyRetries;
+
+        @Label("Queue Wait")
+        @Description("Time between the job becoming due and being claimed.")
+        @Timespan(Timespan.MILLISECONDS)
+        long queueWait;
+    }
+
+    @Name(PREFIX + "Spawn")
+    @Label("Spawn")
+    @Description("Starting the job's process.")
+    static class Spawn extends JobEvent {
+    }
+
+    @Name(PREFIX + "Execute")
+    @Label("Execute")
+    @Description("Running the job's process, from spawn until it exits or is killed at the timeout.")
+    static class Execute extends JobEvent {
+        @Label("Exit Code")
+        int exitCode;
+    }
+
+    @Name(PREFIX + "OutputDrain")
+    @Label("Output Drain")
+    @Description("Reading the job's output still unread when the process exited.")
+    static class OutputDrain extends JobEvent {
+        @Label("Output Characters")
+        long characters;
+    }
+
+    @Name(PREFIX + "Commit")
+    @Label("State Commit")
+    @Description("Writing the attempt's outcome back to the database.")
+    static class Commit extends JobEvent {
+        @Label("State")
+        String state;
+    }
+
+    /** Starts a recording of all job events that is written to {@code destination} when stopped. */
+    static Recording startRecording(Path destination) throws IOException {
+        Recording recording = new Recording();
+        recording.setName("queuectl");
+        for (Class<? extends Event> type : ALL) {
+            recording.enable(type).withThreshold(Duration.ZERO);
+        }
+        recording.setToDisk(true);
+        recording.setDestination(destination);
+        recording.start();
+        return recording;
+    }
+}
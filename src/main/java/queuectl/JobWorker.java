@@ -1,7 +1,9 @@
 package queuectl;
 
 import java.io.BufferedReader;
+import java.io.IOException;
 import java.io.InputStreamReader;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.concurrent.TimeUnit;
 
@@ -49,31 +51,56 @@ public class JobWorker implements Runnable {
 
             ProcessBuilder pb = new ProcessBuilder(cmd);
             pb.redirectErrorStream(true);
+            JobEvents.Spawn spawn = trace(new JobEvents.Spawn(), job);
+            spawn.begin();
             Process process = pb.start();
+            spawn.commit();
 
+            // Output is read on its own thread so the phases don't overlap: Execute ends when the process
+            // exits, and Output Drain only covers what is still unread after that.
             StringBuilder output = new StringBuilder();
-            try (BufferedReader reader = new BufferedReader(
-                    new InputStreamReader(process.getInputStream()))) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    output.append(line).append("\n");
-                }
-            }
-
+            Thread outputReader = new Thread(() -> {
+                try (BufferedReader reader = new BufferedReader(
+                        new InputStreamReader(process.getInputStream()))) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        output.append(line).append("\n");
+                    }
+                } catch (IOException ignored) {}
+            }, id + "-output");
+            outputReader.start();
+
+            JobEvents.Execute execute = trace(new JobEvents.Execute(), job);
+            execute.begin();
             int timeoutSec = Config.getInt("job_timeout_seconds", 300);
             boolean finished = process.waitFor(timeoutSec, TimeUnit.SECONDS);
             int exitCode;
             if (!finished) {
+                // Children of the shell would otherwise keep the output pipe open after it is killed.
+                process.descendants().forEach(ProcessHandle::destroyForcibly);
                 process.destroyForcibly();
                 exitCode = -1;
             } else {
                 exitCode = process.exitValue();
             }
+            execute.exitCode = exitCode;
+            execute.commit();
+
+            JobEvents.OutputDrain drain = trace(new JobEvents.OutputDrain(), job);
+            drain.begin();
+            outputReader.join();
+            drain.characters = output.length();
+            drain.commit();
 
             String log = output.toString().trim();
 
             if (exitCode == 0) {
+                JobEvents.Commit commit = trace(new JobEvents.Commit(), job);
+                commit.begin();
                 Database.markJobCompleted(job.id);
+                recordSuccess(job);
+                commit.state = "completed";
+                commit.commit();
                 System.out.println("Worker " + id + " completed job: " + job.id);
             } else {
                 handleFailedJob(job, "Exit code: " + exitCode + "\nOutput: " + log);
@@ -85,17 +112,46 @@ public class JobWorker implements Runnable {
     }
 
     private void handleFailedJob(Job job, String error) {
+        JobEvents.Commit commit = trace(new JobEvents.Commit(), job);
+        commit.begin();
         int newAttempts = job.attempts;
         
         if (newAttempts >= job.maxRetries) {
             Database.markJobDead(job.id, error);
+            commit.state = "dead";
             System.err.println("Worker " + id + " moved job to DLQ: " + job.id);
         } else {
-            int base = Config.getInt("backoff_base", 2);
-            long backoffSeconds = (long) Math.pow(base, newAttempts);
-            Instant newRunAt = Instant.now().plusSeconds(backoffSeconds);
-            Database.markJobFailed(job.id, error, newAttempts, newRunAt);
-            System.err.println("Worker " + id + " failed job: " + job.id + ". Retrying in " + backoffSeconds + "s.");
+            Duration backoff = RetryPolicy.forJob(job).nextDelay(newAttempts, Duration.ofMillis(job.lastBackoffMs));
+            Instant newRunAt = Instant.now().plus(backoff);
+            Database.markJobFailed(job.id, error, newAttempts, newRunAt, backoff.toMillis());
+            commit.state = "pending";
+            System.err.println("Worker " + id + " failed job: " + job.id + ". Retrying in " + backoff.toMillis() / 1000.0 + "s.");
+        }
+        recordFailure(job);
+        commit.commit();
+    }
+
+    private <T extends JobEvents.JobEvent> T trace(T event, Job job) {
+        event.jobId = job.id;
+        event.workerId = id;
+        return event;
+    }
+
+    private void recordSuccess(Job job) {
+        // Always resolved, so a breaker left behind when breakers were disabled still closes.
+        if (job.commandKey != null) {
+            Database.recordBreakerSuccess(job.commandKey);
+        }
+    }
+
+    private void recordFailure(Job job) {
+        int threshold = Config.getInt("breaker_failure_threshold", 5);
+        if (job.commandKey == null || threshold <= 0) {
+            return;
+        }
+        int cooldown = Config.getInt("breaker_cooldown_seconds", 30);
+        if (Database.recordBreakerFailure(job.commandKey, threshold, cooldown)) {
+            System.err.println("Worker " + id + " circuit open for '" + job.commandKey + "'. Pausing claims for " + cooldown + "s.");
         }
     }
 
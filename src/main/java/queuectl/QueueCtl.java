@@ -2,12 +2,26 @@ package queuectl;
 
 import picocli.CommandLine;
 import picocli.CommandLine.Command;
+import picocli.CommandLine.Mixin;
 import picocli.CommandLine.Option;
 import picocli.CommandLine.Parameters;
 
+import jdk.jfr.Recording;
+import jdk.jfr.Timespan;
+import jdk.jfr.ValueDescriptor;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -23,7 +37,8 @@ import java.util.concurrent.TimeUnit;
         QueueCtl.WorkerCommand.class,
         QueueCtl.DLQCommand.class,
         QueueCtl.ConfigCommand.class,
-        QueueCtl.StatusCommand.class
+        QueueCtl.StatusCommand.class,
+        QueueCtl.TraceCommand.class
     })
 public class QueueCtl implements Callable<Integer> {
 
@@ -40,9 +55,20 @@ public class QueueCtl implements Callable<Integer> {
         @Parameters(index = "0", description = "The command for the job to execute.")
         private String command;
 
+        @Option(names = "--retry-policy", description = "Retry policy for this job: exponential, full-jitter, decorrelated-jitter or fixed. Defaults to the retry_policy config.")
+        private String retryPolicy;
+
         @Override
         public Integer call() {
-            String jobId = Database.enqueueJob(command);
+            if (retryPolicy != null) {
+                try {
+                    RetryPolicy.forName(retryPolicy);
+                } catch (IllegalArgumentException e) {
+                    System.err.println(e.getMessage());
+                    return 1;
+                }
+            }
+            String jobId = Database.enqueueJob(command, retryPolicy);
             if (jobId != null) {
                 System.out.println("Job enqueued with ID: " + jobId);
                 return 0;
@@ -82,8 +108,23 @@ public class QueueCtl implements Callable<Integer> {
         @Option(names = "--count", defaultValue = "1", description = "Number of workers to start.")
         private int count;
 
+        @Option(names = "--jfr", description = "Record job lifecycle events with Java Flight Recorder to this file.")
+        private Path jfrFile;
+
         @Override
         public Integer call() {
+            Recording recording = null;
+            if (jfrFile != null) {
+                try {
+                    recording = JobEvents.startRecording(jfrFile);
+                    System.out.println("Recording job events to " + jfrFile);
+                } catch (IOException | IllegalStateException e) {
+                    System.err.println("Failed to start flight recording: " + e.getMessage());
+                    return 1;
+                }
+            }
+            Recording activeRecording = recording;
+
             System.out.println("Starting " + count + " workers... Press Ctrl+C to stop.");
             ExecutorService executor = Executors.newFixedThreadPool(count);
             List<JobWorker> workers = new ArrayList<>();
@@ -108,6 +149,18 @@ public class QueueCtl implements Callable<Integer> {
                     executor.shutdownNow();
                 }
                 System.out.println("Workers stopped.");
+
+                // Flight Recorder's own shutdown hook runs concurrently with this one and usually finalizes
+                // the recording first, without the events of attempts that were still in flight.
+                if (activeRecording != null) {
+                    try {
+                        activeRecording.stop();
+                        activeRecording.close();
+                        System.out.println("Flight recording written to " + jfrFile);
+                    } catch (IllegalStateException e) {
+                        System.out.println("Flight recording written to " + jfrFile + " by the JVM; attempts still running at shutdown may be missing events.");
+                    }
+                }
             }));
 
             try {
@@ -124,42 +177,106 @@ public class QueueCtl implements Callable<Integer> {
         description = "Manage the Dead Letter Queue (DLQ).",
         subcommands = {
             DLQCommand.ListDLQCommand.class,
-            DLQCommand.RetryDLQCommand.class
+            DLQCommand.RetryDLQCommand.class,
+            DLQCommand.PurgeDLQCommand.class
         })
     static class DLQCommand implements Callable<Integer> {
         @Override
         public Integer call() {
-            System.out.println("Use 'dlq list' or 'dlq retry'.");
+            System.out.println("Use 'dlq list', 'dlq retry' or 'dlq purge'.");
             return 0;
         }
 
-        @Command(name = "list", description = "List all jobs in the DLQ.")
+        @Command(name = "list", description = "List jobs in the DLQ.")
         static class ListDLQCommand implements Callable<Integer> {
+            @Option(names = "--group-by-error", description = "Show each distinct error once with the number of jobs that failed with it.")
+            private boolean groupByError;
+
+            @Mixin
+            private DLQFilter filter;
+
             @Override
             public Integer call() {
-                List<Job> jobs = Database.getJobsByState("dead");
-                if (jobs.isEmpty()) {
+                if (groupByError) {
+                    return listGroups();
+                }
+
+                Map<Long, String> errors = new HashMap<>();
+                int count = Database.forEachDeadJob(filter, job -> {
+                    System.out.println("- " + job.toString());
+                    String error = job.errorId != null
+                        ? errors.computeIfAbsent(job.errorId, Database::getErrorText)
+                        : job.errorMessage;
+                    if (error != null) {
+                        System.out.println("    Error: " + error.replace("\n", "\n    "));
+                    }
+                });
+                if (count == 0) {
                     System.out.println("DLQ is empty.");
                 } else {
-                    System.out.println("Found " + jobs.size() + " jobs in DLQ:");
-                    for (Job job : jobs) {
-                        System.out.println("- " + job.toString());
-                        if (job.errorMessage != null) {
-                            System.out.println("    Error: " + job.errorMessage.replace("\n", "\n    "));
-                        }
+                    System.out.println("Found " + count + " jobs in DLQ.");
+                }
+                return 0;
+            }
+
+            private Integer listGroups() {
+                List<ErrorGroup> groups = Database.getDeadErrorGroups(filter);
+                if (groups.isEmpty()) {
+                    System.out.println("DLQ is empty.");
+                } else {
+                    System.out.println("Found " + groups.size() + " distinct errors in DLQ:");
+                    for (ErrorGroup group : groups) {
+                        System.out.println("- " + group.toString());
+                        System.out.println("    " + group.summary);
                     }
                 }
                 return 0;
             }
         }
 
-        @Command(name = "retry", description = "Retry a specific job from the DLQ.")
+        @Command(name = "retry", description = "Retry a job, all jobs, or a filtered set of jobs from the DLQ.")
         static class RetryDLQCommand implements Callable<Integer> {
-            @Parameters(index = "0", description = "The ID of the job to retry.")
+            @Parameters(index = "0", arity = "0..1", description = "The ID of the job to retry.")
             private String jobId;
 
+            @Option(names = "--all", description = "Retry every job in the DLQ.")
+            private boolean all;
+
+            @Mixin
+            private DLQFilter filter;
+
+            // Left null unless given, so they can be rejected alongside a single job ID.
+            @Option(names = "--batch-size", description = "Jobs requeued per transaction (default: 500).")
+            private Integer batchSize;
+
+            @Option(names = "--rate", description = "Make requeued jobs due at this many jobs per second (default: 0 = all at once).")
+            private Double rate;
+
             @Override
             public Integer call() {
+                if (jobId == null) {
+                    if (!all && filter.isEmpty()) {
+                        System.err.println("Specify a job ID, --all, or at least one filter.");
+                        return 1;
+                    }
+                    int chunk = batchSize != null ? batchSize : 500;
+                    double perSecond = rate != null ? rate : 0;
+                    if (chunk < 1) {
+                        System.err.println("--batch-size must be at least 1.");
+                        return 1;
+                    }
+                    int count = Database.retryDeadJobs(filter, chunk, perSecond);
+                    System.out.println("Moved " + count + " jobs back to 'pending' queue.");
+                    if (perSecond > 0 && count > 0) {
+                        System.out.printf("Jobs become due over the next %.0fs.%n", count / perSecond);
+                    }
+                    return 0;
+                }
+
+                if (all || !filter.isEmpty() || batchSize != null || rate != null) {
+                    System.err.println("A job ID cannot be combined with --all, filters, --batch-size or --rate.");
+                    return 1;
+                }
                 if (Database.retryJob(jobId)) {
                     System.out.println("Job " + jobId + " moved back to 'pending' queue.");
                     return 0;
@@ -169,6 +286,33 @@ public class QueueCtl implements Callable<Integer> {
                 }
             }
         }
+
+        @Command(name = "purge", description = "Permanently delete all or a filtered set of jobs from the DLQ.")
+        static class PurgeDLQCommand implements Callable<Integer> {
+            @Option(names = "--all", description = "Purge every job in the DLQ.")
+            private boolean all;
+
+            @Mixin
+            private DLQFilter filter;
+
+            @Option(names = "--batch-size", defaultValue = "500", description = "Jobs deleted per transaction.")
+            private int batchSize;
+
+            @Override
+            public Integer call() {
+                if (!all && filter.isEmpty()) {
+                    System.err.println("Specify --all or at least one filter.");
+                    return 1;
+                }
+                if (batchSize < 1) {
+                    System.err.println("--batch-size must be at least 1.");
+                    return 1;
+                }
+                int count = Database.purgeDeadJobs(filter, batchSize);
+                System.out.println("Purged " + count + " jobs from the DLQ.");
+                return 0;
+            }
+        }
     }
     
     @Command(name = "config",
@@ -229,10 +373,83 @@ public class QueueCtl implements Callable<Integer> {
             System.out.println("Processing: " + processing);
             System.out.println("Completed:  " + completed);
             System.out.println("Dead (DLQ): " + dead);
-            
-            
+
+            List<CircuitBreaker> breakers = Database.getCircuitBreakers();
+            if (!breakers.isEmpty()) {
+                System.out.println();
+                System.out.println("Circuit Breakers");
+                for (CircuitBreaker breaker : breakers) {
+                    System.out.println("- " + breaker.toString());
+                }
+            }
+
+            return 0;
+        }
+    }
+
+    @Command(name = "trace",
+        description = "Print a job's phase timeline from a flight recording made with 'worker --jfr'.")
+    static class TraceCommand implements Callable<Integer> {
+
+        private static final Set<String> COMMON_FIELDS = Set.of("startTime", "duration", "eventThread", "stackTrace", "jobId", "workerId");
+
+        @Parameters(index = "0", description = "The ID of the job to trace.")
+        private String jobId;
+
+        @Option(names = "--jfr", required = true, description = "The flight recording file to read.")
+        private Path jfrFile;
+
+        @Override
+        public Integer call() {
+            List<RecordedEvent> events;
+            try {
+                events = RecordingFile.readAllEvents(jfrFile);
+            } catch (IOException e) {
+                System.err.println("Failed to read flight recording: " + e.getMessage());
+                return 1;
+            }
+
+            List<RecordedEvent> timeline = new ArrayList<>();
+            for (RecordedEvent event : events) {
+                if (event.getEventType().getName().startsWith(JobEvents.PREFIX) && jobId.equals(event.getString("jobId"))) {
+                    timeline.add(event);
+                }
+            }
+            if (timeline.isEmpty()) {
+                System.out.println("No events found for job " + jobId + " in " + jfrFile);
+                return 1;
+            }
+            timeline.sort(Comparator.comparing(RecordedEvent::getStartTime));
+
+            Instant origin = timeline.get(0).getStartTime();
+            System.out.println("Trace for job " + jobId + " (" + timeline.size() + " events):");
+            for (RecordedEvent event : timeline) {
+                StringBuilder details = new StringBuilder("worker=" + event.getString("workerId"));
+                for (ValueDescriptor field : event.getFields()) {
+                    if (!COMMON_FIELDS.contains(field.getName())) {
+                        details.append(' ').append(field.getName()).append('=').append(format(event, field));
+                    }
+                }
+                System.out.printf("  +%10.3f ms  %-14s %10.3f ms  %s%n",
+                    millis(Duration.between(origin, event.getStartTime())),
+                    event.getEventType().getLabel(),
+                    millis(event.getDuration()),
+                    details);
+            }
             return 0;
         }
+
+        private static double millis(Duration duration) {
+            return duration.toNanos() / 1_000_000.0;
+        }
+
+        private static String format(RecordedEvent event, ValueDescriptor field) {
+            if (Timespan.class.getName().equals(field.getContentType())) {
+                return String.format("%.3fms", millis(event.getDuration(field.getName())));
+            }
+            Object value = event.getValue(field.getName());
+            return String.valueOf(value);
+        }
     }
 
     public static void main(String[] args) {
@@ -0,0 +1,66 @@
+package queuectl;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+public interface RetryPolicy {
+
+    String EXPONENTIAL = "exponential";
+    String FULL_JITTER = "full-jitter";
+    String DECORRELATED_JITTER = "decorrelated-jitter";
+    String FIXED = "fixed";
+
+    /**
+     * Delay before the next attempt. {@code attempts} is the number of attempts made so far,
+     * {@code previous} is the delay used before the last retry (zero on the first failure).
+     */
+    Duration nextDelay(int attempts, Duration previous);
+
+    static RetryPolicy forName(String name) {
+        int base = Config.getInt("backoff_base", 2);
+        long baseMs = base * 1000L;
+        long capMs = Config.getInt("backoff_cap_seconds", 3600) * 1000L;
+
+        switch (name) {
+            case EXPONENTIAL:
+                return (attempts, previous) -> Duration.ofMillis(exponential(base, attempts, capMs));
+            case FULL_JITTER:
+                return (attempts, previous) -> {
+                    long ceiling = exponential(base, attempts, capMs);
+                    return Duration.ofMillis(ThreadLocalRandom.current().nextLong(ceiling + 1));
+                };
+            case DECORRELATED_JITTER:
+                return (attempts, previous) -> {
+                    long upper = Math.max(baseMs, previous.toMillis() * 3);
+                    long next = ThreadLocalRandom.current().nextLong(baseMs, upper + 1);
+                    return Duration.ofMillis(Math.min(capMs, next));
+                };
+            case FIXED:
+                long fixedMs = Config.getInt("fixed_backoff_seconds", 10) * 1000L;
+                return (attempts, previous) -> Duration.ofMillis(Math.min(capMs, fixedMs));
+            default:
+                throw new IllegalArgumentException("Unknown retry policy: " + name
+                    + " (expected one of " + EXPONENTIAL + ", " + FULL_JITTER + ", "
+                    + DECORRELATED_JITTER + ", " + FIXED + ")");
+        }
+    }
+
+    /** Resolves the job's own policy, falling back to the configured {@code retry_policy}. */
+    static RetryPolicy forJob(Job job) {
+        String name = job.retryPolicy != null ? job.retryPolicy : Config.get("retry_policy");
+        if (name == null) {
+            name = EXPONENTIAL;
+        }
+        try {
+            return forName(name);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage() + ". Falling back to " + EXPONENTIAL + ".");
+            return forName(EXPONENTIAL);
+        }
+    }
+
+    private static long exponential(int base, int attempts, long capMs) {
+        double seconds = Math.pow(base, attempts);
+        return (long) Math.min(capMs, seconds * 1000);
+    }
+}